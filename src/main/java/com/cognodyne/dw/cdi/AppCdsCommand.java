@@ -0,0 +1,267 @@
+package com.cognodyne.dw.cdi;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.eclipse.jetty.server.Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.cli.EnvironmentCommand;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.inf.MutuallyExclusiveGroup;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+/**
+ * Produces an AppCDS archive for the application and reports how much startup time it saves.
+ * <p>
+ * The command forks the current JVM three ways: a training run with {@code -XX:DumpLoadedClassList} that boots the
+ * application (Weld, {@code @Startup} beans, bundles, {@code Application.run}), starts and stops the server and runs
+ * the health checks; a {@code -Xshare:dump} run that turns the class list into an archive; and a set of timed runs of
+ * the same boot path with and without the archive. Requires JDK 11 or later and an application started with
+ * {@code java -jar} or {@code java -cp ... Main}.
+ */
+public class AppCdsCommand extends ConfiguredCommand<Configuration> {
+    private static final Logger       logger            = LoggerFactory.getLogger(AppCdsCommand.class);
+    private static final List<String> SHARING_OPTIONS   = ImmutableList.of("-Xshare", "-XX:SharedArchiveFile", "-XX:SharedClassListFile", "-XX:DumpLoadedClassList", "-XX:ArchiveClassesAtExit");
+    private static final List<String> DEBUGGER_OPTIONS  = ImmutableList.of("-agentlib:jdwp", "-Xrunjdwp", "-Xdebug");
+    private static final int          MIN_JAVA_VERSION  = 11;
+    private static final String       TRAINING          = "training";
+    private static final String       STARTUP_TIME_FILE = "startupTimeFile";
+    private static final String       ARCHIVE           = "archive";
+    private static final String       CLASS_LIST        = "classList";
+    private static final String       CHECK_ONLY        = "checkOnly";
+    private static final String       SKIP_CHECK        = "skipCheck";
+    private static final String       CHECK_RUNS        = "checkRuns";
+    private static final String       TIMEOUT           = "timeout";
+    private Application<?>            application;
+
+    public AppCdsCommand() {
+        super("appcds", "Trains the application and dumps an AppCDS archive for faster startup");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("--archive").dest(ARCHIVE).setDefault("app.jsa").help("the AppCDS archive to write");
+        subparser.addArgument("--class-list").dest(CLASS_LIST).setDefault("app.classlist").help("the loaded class list to write during training");
+        MutuallyExclusiveGroup check = subparser.addMutuallyExclusiveGroup();
+        check.addArgument("--check-only").dest(CHECK_ONLY).action(Arguments.storeTrue()).help("only measure the startup time saved by an existing archive");
+        check.addArgument("--skip-check").dest(SKIP_CHECK).action(Arguments.storeTrue()).help("do not measure the startup time saved by the archive");
+        subparser.addArgument("--check-runs").dest(CHECK_RUNS).type(Integer.class).setDefault(3).help("number of timed startups with and without the archive");
+        subparser.addArgument("--timeout").dest(TIMEOUT).type(Integer.class).setDefault(300).help("seconds to wait for each forked JVM");
+        subparser.addArgument("--training").dest(TRAINING).action(Arguments.storeTrue()).help(Arguments.SUPPRESS);
+        subparser.addArgument("--startup-time-file").dest(STARTUP_TIME_FILE).help(Arguments.SUPPRESS);
+    }
+
+    @Override
+    public void run(Bootstrap<?> bootstrap, Namespace namespace) throws Exception {
+        this.application = bootstrap.getApplication();
+        super.run(bootstrap, namespace);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected Class<Configuration> getConfigurationClass() {
+        return (Class<Configuration>) this.application.getConfigurationClass();
+    }
+
+    @Override
+    protected void run(Bootstrap<Configuration> bootstrap, Namespace namespace, Configuration configuration) throws Exception {
+        if (namespace.getBoolean(TRAINING)) {
+            new WarmUpCommand(bootstrap.getApplication()).warmUp(bootstrap, namespace, configuration);
+            //the forked jvm only exists for this run, do not wait on lingering non-daemon threads
+            System.exit(0);
+        }
+        int javaVersion = javaMajorVersion(System.getProperty("java.specification.version", ""));
+        if (javaVersion < MIN_JAVA_VERSION) {
+            throw new IllegalStateException("AppCDS for application classes requires JDK " + MIN_JAVA_VERSION + " or later, running on " + javaVersion);
+        }
+        if (System.getProperty("jdk.module.main") != null) {
+            throw new IllegalStateException("appcds does not support module launches (-m), start the application with java -jar or java -cp");
+        }
+        String archive = new File(namespace.getString(ARCHIVE)).getAbsolutePath();
+        String classList = new File(namespace.getString(CLASS_LIST)).getAbsolutePath();
+        int timeout = namespace.getInt(TIMEOUT);
+        if (!namespace.getBoolean(CHECK_ONLY)) {
+            logger.info("training the application, writing loaded classes to {}...", classList);
+            execute(application(namespace, null, "-XX:DumpLoadedClassList=" + classList), timeout, "training run failed");
+            logger.info("dumping AppCDS archive to {}...", archive);
+            execute(java(javaHome(), inputArguments(), "-Xshare:dump", "-XX:SharedClassListFile=" + classList, "-XX:SharedArchiveFile=" + archive, "-cp", System.getProperty("java.class.path")), timeout, "archive dump failed");
+            if (namespace.getBoolean(SKIP_CHECK)) {
+                //the timed runs of the check already fail on an unusable archive
+                logger.info("verifying AppCDS archive {}...", archive);
+                execute(application(namespace, null, "-Xshare:on", "-XX:SharedArchiveFile=" + archive), timeout, "archive " + archive + " cannot be used by this application");
+            }
+            logger.info("start the application with -XX:SharedArchiveFile={} to use the archive", archive);
+        }
+        if (!namespace.getBoolean(SKIP_CHECK)) {
+            check(namespace, archive, Math.max(1, namespace.getInt(CHECK_RUNS)), timeout);
+        }
+    }
+
+    private void check(Namespace namespace, String archive, int runs, int timeout) throws Exception {
+        if (!new File(archive).isFile()) {
+            throw new IllegalStateException("AppCDS archive " + archive + " not found");
+        }
+        //-Xshare:on makes the jvm fail instead of silently running without an archive it cannot map
+        String[] archiveOptions = { "-Xshare:on", "-XX:SharedArchiveFile=" + archive };
+        String archiveFailure = "archive " + archive + " cannot be used by this application, re-run without --check-only";
+        //untimed boot so that the cold start reading the jars and the archive is not counted on either side
+        logger.info("warming up...");
+        startupTime(namespace, timeout, archiveFailure, archiveOptions);
+        long baseline = 0;
+        long archived = 0;
+        //alternate which side runs first (ABBA) so that remaining cache and cpu frequency effects are spread over both sides
+        for (int i = 0; i < runs; i++) {
+            boolean archiveFirst = i % 2 == 1;
+            if (archiveFirst) {
+                logger.info("timing startup {} of {} with the archive...", i + 1, runs);
+                archived += startupTime(namespace, timeout, archiveFailure, archiveOptions);
+            }
+            logger.info("timing startup {} of {} without the archive...", i + 1, runs);
+            baseline += startupTime(namespace, timeout, "startup without archive failed");
+            if (!archiveFirst) {
+                logger.info("timing startup {} of {} with the archive...", i + 1, runs);
+                archived += startupTime(namespace, timeout, archiveFailure, archiveOptions);
+            }
+        }
+        long baselineMillis = baseline / runs;
+        long archivedMillis = archived / runs;
+        long savedMillis = baselineMillis - archivedMillis;
+        logger.info("average startup without archive:{}ms, with archive:{}ms, saved:{}ms ({}%)", baselineMillis, archivedMillis, savedMillis, baselineMillis == 0 ? 0 : savedMillis * 100 / baselineMillis);
+    }
+
+    private long startupTime(Namespace namespace, int timeout, String failure, String... jvmOptions) throws Exception {
+        Path file = Files.createTempFile("appcds", ".startup");
+        try {
+            execute(application(namespace, file.toString(), jvmOptions), timeout, failure);
+            String startupTime = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+            if (startupTime.isEmpty()) {
+                throw new IllegalStateException(failure + ": forked jvm did not report its startup time");
+            }
+            return Long.parseLong(startupTime);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private List<String> application(Namespace namespace, String startupTimeFile, String... jvmOptions) {
+        List<String> command = java(javaHome(), inputArguments(), jvmOptions);
+        command.addAll(launchTarget(System.getProperty("sun.java.command", ""), System.getProperty("java.class.path")));
+        command.addAll(training(this.getName(), namespace.getString("file"), startupTimeFile));
+        return command;
+    }
+
+    private static String javaHome() {
+        return System.getProperty("java.home");
+    }
+
+    private static List<String> inputArguments() {
+        return ManagementFactory.getRuntimeMXBean().getInputArguments();
+    }
+
+    static int javaMajorVersion(String specificationVersion) {
+        String version = specificationVersion.startsWith("1.") ? specificationVersion.substring(2) : specificationVersion;
+        int dot = version.indexOf('.');
+        try {
+            return Integer.parseInt(dot < 0 ? version : version.substring(0, dot));
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("unable to parse java specification version:" + specificationVersion, e);
+        }
+    }
+
+    static List<String> java(String javaHome, List<String> inputArguments, String... options) {
+        List<String> command = Lists.newArrayList(Paths.get(javaHome, "bin", "java").toString());
+        //keep heap, gc and system property settings of this jvm, the archive is only usable with compatible options
+        command.addAll(inputArguments.stream()//
+                .filter(arg -> SHARING_OPTIONS.stream().noneMatch(arg::startsWith) && DEBUGGER_OPTIONS.stream().noneMatch(arg::startsWith))//
+                .collect(Collectors.toList()));
+        command.addAll(ImmutableList.copyOf(options));
+        return command;
+    }
+
+    static List<String> launchTarget(String javaCommand, String classPath) {
+        String command = javaCommand.trim();
+        //with java -jar the class path is exactly the jar, which may contain spaces, followed by the program arguments
+        if (!classPath.isEmpty() && !classPath.contains(File.pathSeparator) && (command.equals(classPath) || command.startsWith(classPath + " "))) {
+            return ImmutableList.of("-jar", classPath);
+        }
+        String main = command.split(" ")[0];
+        if (main.isEmpty()) {
+            throw new IllegalStateException("unable to determine the main class or jar of this jvm, start the application with java -jar or java -cp");
+        }
+        if (main.contains("/")) {
+            throw new IllegalStateException("appcds does not support module launches (" + main + "), start the application with java -jar or java -cp");
+        }
+        return ImmutableList.of("-cp", classPath, main);
+    }
+
+    static List<String> training(String commandName, String file, String startupTimeFile) {
+        List<String> args = Lists.newArrayList(commandName, "--training");
+        if (startupTimeFile != null) {
+            args.add("--startup-time-file");
+            args.add(startupTimeFile);
+        }
+        if (file != null) {
+            //not necessarily a file path, the configuration source provider may resolve it from the classpath or a url
+            args.add(file);
+        }
+        return args;
+    }
+
+    private static void execute(List<String> command, int timeout, String failure) throws Exception {
+        logger.debug("executing:{}", command);
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        if (!process.waitFor(timeout, TimeUnit.SECONDS)) {
+            //wait for the process to die so that it releases its ports before the next run
+            process.destroyForcibly().waitFor();
+            throw new IllegalStateException(failure + ": forked jvm did not finish within " + timeout + " seconds:" + command);
+        }
+        if (process.exitValue() != 0) {
+            throw new IllegalStateException(failure + ": forked jvm exited with " + process.exitValue() + ":" + command);
+        }
+    }
+
+    private static final class WarmUpCommand extends EnvironmentCommand<Configuration> {
+        private WarmUpCommand(Application<Configuration> application) {
+            super(application, "appcds-warmup", "Boots the application once for AppCDS training");
+        }
+
+        private void warmUp(Bootstrap<Configuration> bootstrap, Namespace namespace, Configuration configuration) throws Exception {
+            super.run(bootstrap, namespace, configuration);
+        }
+
+        @Override
+        protected void run(Environment environment, Namespace namespace, Configuration configuration) throws Exception {
+            Server server = configuration.getServerFactory().build(environment);
+            try {
+                server.start();
+                //report the startup time before the health checks and shutdown so that only the boot path is measured
+                String startupTimeFile = namespace.getString(STARTUP_TIME_FILE);
+                if (startupTimeFile != null) {
+                    Files.write(Paths.get(startupTimeFile), Long.toString(ManagementFactory.getRuntimeMXBean().getUptime()).getBytes(StandardCharsets.UTF_8));
+                }
+                environment.healthChecks().runHealthChecks();
+            } finally {
+                server.stop();
+            }
+        }
+    }
+}
@@ -53,7 +53,7 @@ public class CdiBundle implements ConfiguredBundle<CdiConfigurable> {
     @Override
     public void initialize(Bootstrap<?> bootstrap) {
         logger.debug("initializing...");
-        this.extension.getBeans().stream().filter(bean -> Command.class.isAssignableFrom(bean.getBeanClass())).forEach(bean -> {
+        this.extension.getBeans().stream().filter(bean -> Command.class.isAssignableFrom(bean.getBeanClass()) && !ConfiguredCommand.class.isAssignableFrom(bean.getBeanClass())).forEach(bean -> {
             logger.info("adding command:{}...", bean.getBeanClass().getName());
             bootstrap.addCommand((Command) CdiUtil.getReference(bm, bean));
         });
@@ -0,0 +1,78 @@
+package com.cognodyne.dw.cdi;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class AppCdsCommandTest {
+    @Test
+    public void launchTargetUsesJarForJarLaunch() {
+        assertEquals(Arrays.asList("-jar", "/opt/app/app.jar"), AppCdsCommand.launchTarget("/opt/app/app.jar appcds config.yml", "/opt/app/app.jar"));
+    }
+
+    @Test
+    public void launchTargetKeepsSpacesInJarPath() {
+        assertEquals(Arrays.asList("-jar", "/opt/My App/app.jar"), AppCdsCommand.launchTarget("/opt/My App/app.jar appcds config.yml", "/opt/My App/app.jar"));
+    }
+
+    @Test
+    public void launchTargetHandlesJarWithoutArguments() {
+        assertEquals(Arrays.asList("-jar", "/opt/My App/app.jar"), AppCdsCommand.launchTarget("/opt/My App/app.jar", "/opt/My App/app.jar"));
+    }
+
+    @Test
+    public void launchTargetSkipsJarInsideDirectoryName() {
+        assertEquals(Arrays.asList("-jar", "/opt/app.jars/app.jar"), AppCdsCommand.launchTarget("/opt/app.jars/app.jar appcds", "/opt/app.jars/app.jar"));
+    }
+
+    @Test
+    public void launchTargetDetectsUpperCaseJar() {
+        assertEquals(Arrays.asList("-jar", "/opt/app/APP.JAR"), AppCdsCommand.launchTarget("/opt/app/APP.JAR appcds", "/opt/app/APP.JAR"));
+    }
+
+    @Test
+    public void launchTargetIgnoresJarInMainClassArguments() {
+        assertEquals(Arrays.asList("-cp", "lib/a.jar", "com.example.App"), AppCdsCommand.launchTarget("com.example.App appcds --class-list out.jar config.yml", "lib/a.jar"));
+    }
+
+    @Test
+    public void launchTargetUsesClassPathForMainClassLaunch() {
+        assertEquals(Arrays.asList("-cp", "lib/a:lib/b", "com.example.MyApplication"), AppCdsCommand.launchTarget("com.example.MyApplication appcds config.yml", "lib/a:lib/b"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void launchTargetRejectsModuleLaunch() {
+        AppCdsCommand.launchTarget("my.module/com.example.MyApplication appcds", "");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void launchTargetRejectsUnknownLaunch() {
+        AppCdsCommand.launchTarget(" ", "");
+    }
+
+    @Test
+    public void javaFiltersSharingAndDebuggerOptions() {
+        assertEquals(Arrays.asList(Paths.get("/jdk", "bin", "java").toString(), "-Xmx1g", "-Dfoo=bar", "-XX:+UseG1GC", "-Xshare:on"), //
+                AppCdsCommand.java("/jdk", ImmutableList.of("-Xmx1g", "-Xshare:auto", "-XX:SharedArchiveFile=old.jsa", "-XX:SharedClassListFile=old.classlist", "-XX:DumpLoadedClassList=old.classlist", "-XX:ArchiveClassesAtExit=old.jsa", "-Dfoo=bar",
+                        "-agentlib:jdwp=transport=dt_socket,server=y,address=5005", "-Xdebug", "-Xrunjdwp:transport=dt_socket", "-XX:+UseG1GC"), "-Xshare:on"));
+    }
+
+    @Test
+    public void trainingArguments() {
+        assertEquals(Arrays.asList("appcds", "--training"), AppCdsCommand.training("appcds", null, null));
+        assertEquals(Arrays.asList("appcds", "--training", "--startup-time-file", "/tmp/startup", "config.yml"), AppCdsCommand.training("appcds", "config.yml", "/tmp/startup"));
+    }
+
+    @Test
+    public void javaMajorVersion() {
+        assertEquals(8, AppCdsCommand.javaMajorVersion("1.8"));
+        assertEquals(10, AppCdsCommand.javaMajorVersion("10"));
+        assertEquals(11, AppCdsCommand.javaMajorVersion("11"));
+        assertEquals(17, AppCdsCommand.javaMajorVersion("17.0"));
+    }
+}